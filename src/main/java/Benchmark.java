@@ -0,0 +1,100 @@
+import com.google.ortools.sat.CpSolverStatus;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Size sweep for the large-grid solver: random square instances of growing size are solved with SolverTiled, and
+// wall time and memory are printed in total and per cell. Each size runs in its own JVM, so that the peak resident
+// set size of the process (VmHWM, Linux only) covers the native memory of CP-SAT for that size alone. The Java heap in
+// use is sampled during the run and its maximum is printed as well.
+// Usage: Benchmark [sizes...], e.g. Benchmark 50 100 200
+public class Benchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && args[0].equals("--one")) {
+            runOne(Integer.parseInt(args[1]));
+            return;
+        }
+
+        List<String> sizes = new ArrayList<>(List.of("25", "50", "100", "150", "200"));
+        if (args.length > 0) sizes = List.of(args);
+
+        System.out.printf("%6s %8s %6s %7s %10s %10s %10s %10s %10s %s%n",
+                "size", "cells", "tiles", "repairs", "ms", "us/cell", "RSS MB", "RSS B/cell", "heap MB", "status");
+
+        // same JVM and options for every size, without debuggers and agents that would all try to attach again
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<String> options = new ArrayList<>();
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments())
+            if (!arg.startsWith("-agentlib") && !arg.startsWith("-agentpath") && !arg.startsWith("-javaagent")
+                    && !arg.startsWith("-Xrunjdwp") && !arg.startsWith("-Xdebug"))
+                options.add(arg);
+        for (String n : sizes) {
+            List<String> cmd = new ArrayList<>();
+            cmd.add(java);
+            cmd.addAll(options);
+            cmd.add("-cp");
+            cmd.add(System.getProperty("java.class.path"));
+            cmd.add(Benchmark.class.getName());
+            cmd.add("--one");
+            cmd.add(n);
+            int exit = new ProcessBuilder(cmd).inheritIO().start().waitFor();
+            if (exit != 0) System.out.println("size " + n + " failed with exit code " + exit);
+        }
+    }
+
+    private static void runOne(int n) throws Exception {
+        Type[][] t = Generator.generate(n, n, n);
+        Grid g = new Grid(n, n, t);
+
+        // the peaks of the single heap pools are reached at different times, so their sum would overstate the heap
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong heap = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                heap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        sampler.setDaemon(true);
+        sampler.start();
+
+        SolverTiled solver = new SolverTiled(g);
+        long start = System.nanoTime();
+        CpSolverStatus status = solver.run();
+        long end = System.nanoTime();
+
+        sampler.interrupt();
+        sampler.join();
+        heap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        long rss = peakRss();
+
+        long cells = (long) n * n;
+        System.out.printf("%6d %8d %6d %7d %10d %10.1f %10s %10s %10.1f %s%n",
+                n, cells, solver.tiles, solver.repairs, (end - start) / 1_000_000, (end - start) / 1000.0 / cells,
+                rss < 0 ? "n/a" : String.format("%.1f", rss / 1048576.0), rss < 0 ? "n/a" : String.valueOf(rss / cells),
+                heap.get() / 1048576.0, status + (solver.fallback ? " (full model)" : ""));
+    }
+
+    // Peak resident set size of this process in bytes, -1 where /proc is not available
+    private static long peakRss() {
+        try {
+            for (String line : Files.readAllLines(Paths.get("/proc/self/status")))
+                if (line.startsWith("VmHWM:"))
+                    return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Random access into a binary corpus written by CorpusWriter.
+// The file is memory-mapped in windows, and all accessors read directly from the mapping without copying or allocating,
+// so puzzles can be inspected by index in constant time. Only grid() allocates, since the solvers need a Grid.
+public class CorpusReader {
+
+    static final int MAGIC = 0x4D535955; // "MSYU"
+    static final int VERSION = 1;
+    static final int FLAG_SOLUTIONS = 1;
+    static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    // Cached since Type.values() returns a new array on every call
+    private static final Type[] TYPES = Type.values();
+
+    // The file is mapped in windows of 1 GB, each extended by a few bytes so that a value starting inside a window
+    // never crosses its end. Window k starts at byte k << WINDOW_BITS.
+    static final int WINDOW_BITS = 30;
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+    private static final int WINDOW_SLACK = Long.BYTES;
+
+    private final MappedByteBuffer[] windows;
+    private final int count;
+    private final boolean hasSolutions;
+
+    public CorpusReader(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = ch.size();
+            // the mappings stay valid after the channel is closed
+            windows = new MappedByteBuffer[(int) ((size + WINDOW_MASK) >>> WINDOW_BITS)];
+            for (int k = 0; k < windows.length; k++) {
+                long start = (long) k << WINDOW_BITS;
+                windows[k] = ch.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, (1L << WINDOW_BITS) + WINDOW_SLACK));
+            }
+            if (size < HEADER_BYTES || getInt(0) != MAGIC)
+                throw new IOException("Not a Masyu corpus file: " + file);
+        }
+        if (getInt(4) != VERSION)
+            throw new IOException("Unsupported corpus version " + getInt(4) + ": " + file);
+        count = getInt(8);
+        hasSolutions = (getInt(12) & FLAG_SOLUTIONS) != 0;
+    }
+
+    private byte get(long pos) {
+        return windows[(int) (pos >>> WINDOW_BITS)].get((int) (pos & WINDOW_MASK));
+    }
+
+    private short getShort(long pos) {
+        return windows[(int) (pos >>> WINDOW_BITS)].getShort((int) (pos & WINDOW_MASK));
+    }
+
+    private int getInt(long pos) {
+        return windows[(int) (pos >>> WINDOW_BITS)].getInt((int) (pos & WINDOW_MASK));
+    }
+
+    private long getLong(long pos) {
+        return windows[(int) (pos >>> WINDOW_BITS)].getLong((int) (pos & WINDOW_MASK));
+    }
+
+    public int size() {
+        return count;
+    }
+
+    private long puzzleOffset(int index) {
+        if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Puzzle index " + index + " of " + count);
+        return getLong(HEADER_BYTES + (long) index * Long.BYTES);
+    }
+
+    private long solutionOffset(int index) {
+        if (!hasSolutions) return -1;
+        return getLong(HEADER_BYTES + ((long) count + index) * Long.BYTES);
+    }
+
+    private static void checkCell(int index, int r, int c, int h, int w) {
+        if (r < 0 || r >= h || c < 0 || c >= w)
+            throw new IndexOutOfBoundsException("(" + r + "," + c + ") outside " + h + "x" + w + " of puzzle " + index);
+    }
+
+    public int height(int index) {
+        return getShort(puzzleOffset(index));
+    }
+
+    public int width(int index) {
+        return getShort(puzzleOffset(index) + Short.BYTES);
+    }
+
+    // Pearl at (r,c) of puzzle index, unpacked from its 2-bit slot
+    public Type type(int index, int r, int c) {
+        long off = puzzleOffset(index);
+        int w = getShort(off + Short.BYTES);
+        checkCell(index, r, c, getShort(off), w);
+        long i = (long) r * w + c;
+        int b = get(off + 2 * Short.BYTES + (i >>> 2));
+        return TYPES[(b >>> ((i & 3) << 1)) & 3];
+    }
+
+    public boolean hasSolution(int index) {
+        puzzleOffset(index);
+        return solutionOffset(index) >= 0;
+    }
+
+    // horiz[r][c] of the stored solution, i.e. the edge between (r,c) and (r,c+1)
+    public boolean horiz(int index, int r, int c) {
+        int h = height(index), w = width(index);
+        checkCell(index, r, c, h, w - 1);
+        return solutionBit(index, (long) r * (w - 1) + c);
+    }
+
+    // vert[r][c] of the stored solution, i.e. the edge between (r,c) and (r+1,c)
+    public boolean vert(int index, int r, int c) {
+        int h = height(index), w = width(index);
+        checkCell(index, r, c, h - 1, w);
+        return solutionBit(index, (long) h * (w - 1) + (long) r * w + c);
+    }
+
+    private boolean solutionBit(int index, long i) {
+        long off = solutionOffset(index);
+        if (off < 0) throw new IllegalStateException("Puzzle " + index + " has no stored solution");
+        return (get(off + (i >>> 3)) >>> (i & 7) & 1) != 0;
+    }
+
+    // Building a Grid for the solvers from puzzle index
+    public Grid grid(int index) {
+        int h = height(index), w = width(index);
+        long start = puzzleOffset(index) + 2 * Short.BYTES;
+        Type[][] t = new Type[h][w];
+        for (int r = 0; r < h; r++) {
+            for (int c = 0; c < w; c++) {
+                long i = (long) r * w + c;
+                t[r][c] = TYPES[(get(start + (i >>> 2)) >>> ((i & 3) << 1)) & 3];
+            }
+        }
+        return new Grid(h, w, t);
+    }
+}
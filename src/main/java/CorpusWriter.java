@@ -0,0 +1,176 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Converts text instances into a single binary corpus file that can be memory-mapped by CorpusReader.
+//
+// Layout (big-endian):
+//   header   : int magic, int version, int count, int flags
+//   index    : long[count] puzzle offsets, followed by long[count] solution offsets if FLAG_SOLUTIONS is set (-1 = none)
+//   puzzle   : short h, short w, then h*w pearls packed 2 bits per cell (Type ordinal), row-major, 4 cells per byte
+//   solution : h*(w-1) horizontal edges then (h-1)*w vertical edges, packed 1 bit per edge, 8 edges per byte
+public class CorpusWriter {
+
+    private final List<Type[][]> puzzles = new ArrayList<>();
+    private final List<Grid> solutions = new ArrayList<>();
+
+    // Adding a puzzle without a known solution
+    public void add(Type[][] types) {
+        add(types, null);
+    }
+
+    // Adding a puzzle along with a solved grid whose horiz/vert edges are stored as its solution
+    public void add(Type[][] types, Grid solved) {
+        // sizes are stored as shorts
+        if (types.length < 1 || types.length > Short.MAX_VALUE || types[0].length < 1 || types[0].length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Puzzle size must be between 1 and " + Short.MAX_VALUE + " in both dimensions");
+        for (Type[] row : types)
+            if (row.length != types[0].length) throw new IllegalArgumentException("Puzzle rows must have the same length");
+        if (solved != null && (solved.h != types.length || solved.w != types[0].length))
+            throw new IllegalArgumentException("Solution size does not match puzzle size");
+        puzzles.add(types);
+        solutions.add(solved);
+    }
+
+    public int size() {
+        return puzzles.size();
+    }
+
+    public void write(Path out) throws IOException {
+        int count = puzzles.size();
+        boolean withSolutions = solutions.stream().anyMatch(s -> s != null);
+
+        // header and index
+        long indexBytes = CorpusReader.HEADER_BYTES + (long) count * Long.BYTES * (withSolutions ? 2 : 1);
+        if (indexBytes > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many puzzles for one corpus: " + count);
+        int indexEnd = (int) indexBytes;
+        long offset = indexEnd;
+        long[] puzzleOffsets = new long[count];
+        long[] solutionOffsets = new long[count];
+        for (int i = 0; i < count; i++) {
+            Type[][] t = puzzles.get(i);
+            puzzleOffsets[i] = offset;
+            offset += 2 * Short.BYTES + pearlBytes(t.length, t[0].length);
+        }
+        for (int i = 0; i < count; i++) {
+            Type[][] t = puzzles.get(i);
+            if (withSolutions && solutions.get(i) != null) {
+                solutionOffsets[i] = offset;
+                offset += edgeBytes(t.length, t[0].length);
+            } else {
+                solutionOffsets[i] = -1;
+            }
+        }
+
+        try (FileChannel ch = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(indexEnd);
+            header.putInt(CorpusReader.MAGIC);
+            header.putInt(CorpusReader.VERSION);
+            header.putInt(count);
+            header.putInt(withSolutions ? CorpusReader.FLAG_SOLUTIONS : 0);
+            for (long o : puzzleOffsets) header.putLong(o);
+            if (withSolutions)
+                for (long o : solutionOffsets) header.putLong(o);
+            writeFully(ch, header.flip());
+
+            // puzzles
+            for (Type[][] t : puzzles) {
+                int h = t.length, w = t[0].length;
+                ByteBuffer buf = ByteBuffer.allocate(2 * Short.BYTES + pearlBytes(h, w));
+                buf.putShort((short) h);
+                buf.putShort((short) w);
+                int start = buf.position();
+                for (int r = 0; r < h; r++) {
+                    for (int c = 0; c < w; c++) {
+                        long i = (long) r * w + c;
+                        int b = (int) (start + (i >>> 2));
+                        buf.put(b, (byte) (buf.get(b) | t[r][c].ordinal() << ((i & 3) << 1)));
+                    }
+                }
+                writeFully(ch, buf.position(buf.capacity()).flip());
+            }
+
+            // solutions
+            if (withSolutions) {
+                for (Grid g : solutions) {
+                    if (g == null) continue;
+                    ByteBuffer buf = ByteBuffer.allocate(edgeBytes(g.h, g.w));
+                    long i = 0;
+                    for (int r = 0; r < g.h; r++)
+                        for (int c = 0; c < g.w - 1; c++, i++)
+                            if (g.horiz[r][c]) setBit(buf, i);
+                    for (int r = 0; r < g.h - 1; r++)
+                        for (int c = 0; c < g.w; c++, i++)
+                            if (g.vert[r][c]) setBit(buf, i);
+                    writeFully(ch, buf);
+                }
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    private static void setBit(ByteBuffer buf, long i) {
+        int b = (int) (i >>> 3);
+        buf.put(b, (byte) (buf.get(b) | 1 << (i & 7)));
+    }
+
+    // Sizes are at most Short.MAX_VALUE, so the byte counts below always fit in an int
+    static int pearlBytes(int h, int w) {
+        return (int) (((long) h * w + 3) >>> 2);
+    }
+
+    static int edgeBytes(int h, int w) {
+        return (int) (((long) h * (w - 1) + (long) (h - 1) * w + 7) >>> 3);
+    }
+
+    // Parsing an instance in the text format described in the README
+    public static Type[][] readInstance(Path file) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(file)) {
+            String[] s = br.readLine().trim().split("\\s+");
+            int h = Integer.parseInt(s[0]);
+            int w = Integer.parseInt(s[1]);
+
+            Type[][] t = new Type[h][w];
+            for (int i = 0; i < h; i++) {
+                String[] tok = br.readLine().trim().split("\\s+");
+                for (int j = 0; j < w; j++) {
+                    t[i][j] = switch (tok[j]) {
+                        case "b" -> Type.BLACK;
+                        case "w" -> Type.WHITE;
+                        default -> Type.NONE;
+                    };
+                }
+            }
+            return t;
+        }
+    }
+
+    // Usage: CorpusWriter <instances dir> <output file>
+    // Every .txt file in the directory is added in file name order, so janko001 has index 0, janko002 index 1, etc.
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "instances/janko");
+        Path out = Paths.get(args.length > 1 ? args[1] : "instances/janko.bin");
+
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.getFileName().toString().endsWith(".txt")).sorted().toList();
+        }
+
+        CorpusWriter writer = new CorpusWriter();
+        for (Path f : files) writer.add(readInstance(f));
+
+        long start = System.currentTimeMillis();
+        writer.write(out);
+        long end = System.currentTimeMillis();
+        System.out.println("Wrote " + writer.size() + " puzzles to " + out + " in " + (end - start) + " ms");
+    }
+}
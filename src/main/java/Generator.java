@@ -0,0 +1,130 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Generates random solvable instances of any size, e.g. for benchmarks on grids much larger than the Janko ones.
+// A random loop is grown as the border of a simply connected set of faces (the squares between four cell centers),
+// then circles are placed on the loop wherever the rules allow them. Solutions are not guaranteed to be unique.
+// Faces are grown in blocks of 2x2, each new block touching the set on exactly one side, so the set grows as a tree
+// of corridors. Its border then winds through the whole board in straight runs of at least two edges, and with the
+// default density about 20% of the cells get a circle, as in the Janko puzzles. A compact set of single faces would
+// give a short, jagged loop with circles on only a few percent of the board.
+public class Generator {
+
+    public static Type[][] generate(int h, int w, long seed) {
+        return generate(h, w, seed, 0.5, 0.6);
+    }
+
+    // fill is the share of faces inside the loop, density the chance that an allowed circle is placed
+    public static Type[][] generate(int h, int w, long seed, double fill, double density) {
+        // a loop needs at least one face, i.e. a 2x2 block of cells
+        if (h < 2 || w < 2)
+            throw new IllegalArgumentException("Grid must be at least 2x2 to hold a loop, got " + h + "x" + w);
+        Random rnd = new Random(seed);
+        int b = Math.min(h, w) >= 3 ? 2 : 1;
+        int fh = (h - 1) / b;
+        int fw = (w - 1) / b;
+        boolean[][] in = new boolean[fh][fw];
+
+        // grow the set of blocks from a random block, keeping its border a single loop
+        List<Integer> frontier = new ArrayList<>();
+        frontier.add(rnd.nextInt(fh) * fw + rnd.nextInt(fw));
+        int size = 0;
+        int target = Math.max(1, (int) (fill * fh * fw));
+        while (size < target && !frontier.isEmpty()) {
+            int k = rnd.nextInt(frontier.size());
+            int f = frontier.get(k);
+            frontier.set(k, frontier.get(frontier.size() - 1));
+            frontier.remove(frontier.size() - 1);
+
+            int r = f / fw, c = f % fw;
+            if (in[r][c] || (size > 0 && (sides(in, r, c) != 1 || !simple(in, r, c)))) continue;
+            in[r][c] = true;
+            size++;
+            if (r > 0) frontier.add(f - fw);
+            if (r < fh - 1) frontier.add(f + fw);
+            if (c > 0) frontier.add(f - 1);
+            if (c < fw - 1) frontier.add(f + 1);
+        }
+
+        // an edge is on the loop if exactly one of the two faces next to it is inside
+        boolean[][] horiz = new boolean[h][w - 1];
+        boolean[][] vert = new boolean[h - 1][w];
+        for (int r = 0; r < h; r++)
+            for (int c = 0; c < w - 1; c++)
+                horiz[r][c] = face(in, b, r - 1, c) != face(in, b, r, c);
+        for (int r = 0; r < h - 1; r++)
+            for (int c = 0; c < w; c++)
+                vert[r][c] = face(in, b, r, c - 1) != face(in, b, r, c);
+
+        Type[][] t = new Type[h][w];
+        for (int r = 0; r < h; r++) {
+            for (int c = 0; c < w; c++) {
+                t[r][c] = Type.NONE;
+                boolean up = r > 0 && vert[r - 1][c];
+                boolean down = r < h - 1 && vert[r][c];
+                boolean left = c > 0 && horiz[r][c - 1];
+                boolean right = c < w - 1 && horiz[r][c];
+                if (!(up || down || left || right) || rnd.nextDouble() >= density) continue;
+
+                if (up && down) {
+                    if (turns(horiz, vert, r - 1, c) || turns(horiz, vert, r + 1, c)) t[r][c] = Type.WHITE;
+                } else if (left && right) {
+                    if (turns(horiz, vert, r, c - 1) || turns(horiz, vert, r, c + 1)) t[r][c] = Type.WHITE;
+                } else {
+                    // a turn, the line must go straight on both sides after exiting the circle
+                    int nr = up ? r - 1 : r + 1;
+                    int nc = left ? c - 1 : c + 1;
+                    if (!turns(horiz, vert, nr, c) && !turns(horiz, vert, r, nc)) t[r][c] = Type.BLACK;
+                }
+            }
+        }
+        return t;
+    }
+
+    private static boolean face(boolean[][] in, int r, int c) {
+        return r >= 0 && r < in.length && c >= 0 && c < in[0].length && in[r][c];
+    }
+
+    // Whether the face between cells (r,c) and (r+1,c+1) is inside, with blocks of b x b faces
+    private static boolean face(boolean[][] in, int b, int r, int c) {
+        return r >= 0 && c >= 0 && face(in, r / b, c / b);
+    }
+
+    private static int sides(boolean[][] in, int r, int c) {
+        int n = 0;
+        if (face(in, r - 1, c)) n++;
+        if (face(in, r + 1, c)) n++;
+        if (face(in, r, c - 1)) n++;
+        if (face(in, r, c + 1)) n++;
+        return n;
+    }
+
+    // Adding face (r,c) keeps the border a single loop if its inside neighbors, in circular order, form exactly one
+    // run that contains a side neighbor. Otherwise the set would get a hole or two faces touching only at a corner.
+    private static boolean simple(boolean[][] in, int r, int c) {
+        int[] dr = {-1, -1, 0, 1, 1, 1, 0, -1};
+        int[] dc = {0, 1, 1, 1, 0, -1, -1, -1};
+        boolean[] ring = new boolean[8];
+        boolean side = false;
+        for (int k = 0; k < 8; k++) {
+            ring[k] = face(in, r + dr[k], c + dc[k]);
+            if (ring[k] && k % 2 == 0) side = true;
+        }
+        int runs = 0;
+        for (int k = 0; k < 8; k++)
+            if (ring[k] && !ring[(k + 7) % 8]) runs++;
+        return side && runs == 1;
+    }
+
+    // Whether the loop makes a turn at (r,c), which must be a cell on the loop
+    private static boolean turns(boolean[][] horiz, boolean[][] vert, int r, int c) {
+        int h = horiz.length;
+        int w = vert[0].length;
+        boolean up = r > 0 && vert[r - 1][c];
+        boolean down = r < h - 1 && vert[r][c];
+        boolean left = c > 0 && horiz[r][c - 1];
+        boolean right = c < w - 1 && horiz[r][c];
+        return !((up && down) || (left && right));
+    }
+}
@@ -85,6 +85,22 @@ public class Grid {
         }
     }
 
+    // Recomputing degrees and endpoints after horiz/vert have been written directly, e.g. a whole solver assignment at once
+    void updateDegrees() {
+        endpoints.clear();
+        for (int r = 0; r < h; r++) {
+            for (int c = 0; c < w; c++) {
+                int d = 0;
+                if (r > 0 && vert[r - 1][c]) d++;
+                if (c < w - 1 && horiz[r][c]) d++;
+                if (r < h - 1 && vert[r][c]) d++;
+                if (c > 0 && horiz[r][c - 1]) d++;
+                degree[r][c] = d;
+                if (d == 1) endpoints.add(cells[r][c]);
+            }
+        }
+    }
+
     // Check black circle rules
     boolean checkBlack(Cell c) {
         // Basic check: only enforce when cell is black and has 2 edges
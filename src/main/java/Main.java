@@ -1,31 +1,22 @@
-import java.io.*;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 public class Main {
     public static void main(String[] args) throws Exception {
 
-        BufferedReader br = new BufferedReader(new FileReader("instances/janko/Janko760.txt"));
-
-        String[] s = br.readLine().trim().split("\\s+");
-        int h = Integer.parseInt(s[0]);
-        int w = Integer.parseInt(s[1]);
-
-        Type[][] t = new Type[h][w];
-        for(int i=0;i<h;i++){
-            String[] tok = br.readLine().trim().split("\\s+");
-            for(int j=0;j<w;j++){
-                t[i][j] = switch(tok[j]){
-                    case "b" -> Type.BLACK;
-                    case "w" -> Type.WHITE;
-                    default  -> Type.NONE;
-                };
-            }
+        // Usage: Main [instance file] or Main <corpus.bin> <index>
+        String file = args.length > 0 ? args[0] : "instances/janko/Janko760.txt";
+        Grid g;
+        if (file.endsWith(".bin")) {
+            int index = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+            g = new CorpusReader(Paths.get(file)).grid(index);
+        } else {
+            Type[][] t = CorpusWriter.readInstance(Paths.get(file));
+            g = new Grid(t.length, t[0].length, t);
         }
 
-        Grid g = new Grid(h,w,t);
-
         Scanner sc = new Scanner(System.in);
-        System.out.println("Choose solver: 1) DFS  2) CP");
+        System.out.println("Choose solver: 1) DFS  2) CP  3) CP with tiles (large grids)");
         int choice = sc.nextInt();
 
         if (choice == 1) {
@@ -43,6 +34,9 @@ public class Main {
         } else if (choice == 2) {
             SolverCP solver = new SolverCP(g);
             solver.solve();
+        } else if (choice == 3) {
+            SolverTiled solver = new SolverTiled(g);
+            solver.solve();
         } else {
             System.out.println("Invalid choice.");
         }
@@ -45,94 +45,99 @@ public class SolverCP {
             }
         }
 
-        // create IntVars for degrees
-        IntVar[][] deg = new IntVar[h][w];
+        EdgeVars horiz = (i, j) -> hVars[i][j];
+        EdgeVars vert = (i, j) -> vVars[i][j];
         for (int r = 0; r < h; r++) {
             for (int c = 0; c < w; c++) {
+                addCellRules(model, grid, horiz, vert, r, c);
+            }
+        }
+    }
 
-                // if deg > 2 then the loop would branch and break the rules
-                deg[r][c] = model.newIntVar(0, 2, "deg_" + r + "_" + c);
+    // Accessor for the edge variables of a model, [r][c] indexed like hVars/vVars.
+    // May return null for edges the model has no variable for, e.g. when it only covers part of the board.
+    interface EdgeVars {
+        BoolVar get(int r, int c);
+    }
 
-                List<BoolVar> incident = new ArrayList<>(4);
-                if (r > 0) incident.add(vVars[r - 1][c]);          // up
-                if (c < w - 1) incident.add(hVars[r][c]);          // right
-                if (r < h - 1) incident.add(vVars[r][c]);          // down
-                if (c > 0) incident.add(hVars[r][c - 1]);          // left
+    // Adds the rules of the cell at (r,c) to the model. Edges outside the board are never accessed. Every edge of the
+    // cell itself must have a variable, only the edges one step further (beyond a neighbor) may be null, and the white
+    // and black rules that need such an edge are left out, which keeps a partial model a relaxation of the puzzle.
+    static void addCellRules(CpModel model, Grid grid, EdgeVars hVar, EdgeVars vVar, int r, int c) {
+        int h = grid.h;
+        int w = grid.w;
 
-                // deg[r][c] should be equal to incident edges of cells[r][c]
-                model.addEquality(deg[r][c], LinearExpr.sum(incident.toArray(new BoolVar[0])));
+        // if deg > 2 then the loop would branch and break the rules
+        IntVar deg = model.newIntVar(0, 2, "deg_" + r + "_" + c);
 
-                // deg can only be 0 or 2 for a solved state
-                model.addDifferent(deg[r][c], 1);
-            }
-        }
+        List<BoolVar> incident = new ArrayList<>(4);
+        if (r > 0) incident.add(vVar.get(r - 1, c));          // up
+        if (c < w - 1) incident.add(hVar.get(r, c));          // right
+        if (r < h - 1) incident.add(vVar.get(r, c));          // down
+        if (c > 0) incident.add(hVar.get(r, c - 1));          // left
+
+        // deg should be equal to incident edges of cells[r][c]
+        model.addEquality(deg, LinearExpr.sum(incident.toArray(new BoolVar[0])));
+
+        // deg can only be 0 or 2 for a solved state
+        model.addDifferent(deg, 1);
+
+        Type type = grid.cells[r][c].type;
+        if (type == Type.NONE) return;
 
         // line should enter and exit all circles, i.e. circles have degree 2
-        for (int r = 0; r < h; r++) {
-            for (int c = 0; c < w; c++) {
-                if (grid.cells[r][c].type != Type.NONE){
-                    model.addEquality(deg[r][c], 2);
-                }
-            }
-        }
+        model.addEquality(deg, 2);
 
         // white circle rules
-        for (int r = 0; r < h; r++) {
-            for (int c = 0; c < w; c++) {
-                if (grid.cells[r][c].type == Type.WHITE){
-                    // line should go straight through the circle
-                    if (c > 0 && c < w - 1) model.addEquality(hVars[r][c - 1], hVars[r][c]);
-                    if (r > 0 && r < h - 1) model.addEquality(vVars[r - 1][c], vVars[r][c]);
-
-                    // line should make a turn at either side or both
-                    if (r > 1 && r < h - 2) model.addBoolOr(new Literal[]{vVars[r-2][c].not(),vVars[r+1][c].not()}).onlyEnforceIf(vVars[r][c]);
-                    if (c > 1 && c < w - 2) model.addBoolOr(new Literal[]{hVars[r][c-2].not(),hVars[r][c+1].not()}).onlyEnforceIf(hVars[r][c]);
-                }
-            }
+        if (type == Type.WHITE) {
+            // line should go straight through the circle
+            if (c > 0 && c < w - 1) model.addEquality(hVar.get(r, c - 1), hVar.get(r, c));
+            if (r > 0 && r < h - 1) model.addEquality(vVar.get(r - 1, c), vVar.get(r, c));
+
+            // line should make a turn at either side or both
+            if (r > 1 && r < h - 2 && vVar.get(r - 2, c) != null && vVar.get(r + 1, c) != null)
+                model.addBoolOr(new Literal[]{vVar.get(r - 2, c).not(), vVar.get(r + 1, c).not()}).onlyEnforceIf(vVar.get(r, c));
+            if (c > 1 && c < w - 2 && hVar.get(r, c - 2) != null && hVar.get(r, c + 1) != null)
+                model.addBoolOr(new Literal[]{hVar.get(r, c - 2).not(), hVar.get(r, c + 1).not()}).onlyEnforceIf(hVar.get(r, c));
+            return;
         }
 
         // black circle rules
-        for (int r = 0; r < h; r++) {
-            for (int c = 0; c < w; c++) {
-                if (grid.cells[r][c].type == Type.BLACK){
-                    // line should not go straight through the circle
-                    if (c > 0 && c < w - 1) model.addDifferent(hVars[r][c - 1], hVars[r][c]);
-                    if (r > 0 && r < h - 1) model.addDifferent(vVars[r - 1][c], vVars[r][c]);
-
-                    // line should go straight at least one time after exiting the circle
-                    // UP direction
-                    if (r > 0) {
-                        if (r > 1) {
-                            model.addImplication(vVars[r - 1][c], vVars[r - 2][c]);
-                        } else {
-                            model.addEquality(vVars[r - 1][c], 0);
-                        }
-                    }
-                    // DOWN direction
-                    if (r < h - 1) {
-                        if (r < h - 2) {
-                            model.addImplication(vVars[r][c], vVars[r + 1][c]);
-                        } else {
-                            model.addEquality(vVars[r][c], 0);
-                        }
-                    }
-                    // LEFT direction
-                    if (c > 0) {
-                        if (c > 1) {
-                            model.addImplication(hVars[r][c - 1], hVars[r][c - 2]);
-                        } else {
-                            model.addEquality(hVars[r][c - 1], 0);
-                        }
-                    }
-                    // RIGHT direction
-                    if (c < w - 1) {
-                        if (c < w - 2) {
-                            model.addImplication(hVars[r][c], hVars[r][c + 1]);
-                        } else {
-                            model.addEquality(hVars[r][c], 0);
-                        }
-                    }
-                }
+        // line should not go straight through the circle
+        if (c > 0 && c < w - 1) model.addDifferent(hVar.get(r, c - 1), hVar.get(r, c));
+        if (r > 0 && r < h - 1) model.addDifferent(vVar.get(r - 1, c), vVar.get(r, c));
+
+        // line should go straight at least one time after exiting the circle
+        // UP direction
+        if (r > 0) {
+            if (r > 1) {
+                if (vVar.get(r - 2, c) != null) model.addImplication(vVar.get(r - 1, c), vVar.get(r - 2, c));
+            } else {
+                model.addEquality(vVar.get(r - 1, c), 0);
+            }
+        }
+        // DOWN direction
+        if (r < h - 1) {
+            if (r < h - 2) {
+                if (vVar.get(r + 1, c) != null) model.addImplication(vVar.get(r, c), vVar.get(r + 1, c));
+            } else {
+                model.addEquality(vVar.get(r, c), 0);
+            }
+        }
+        // LEFT direction
+        if (c > 0) {
+            if (c > 1) {
+                if (hVar.get(r, c - 2) != null) model.addImplication(hVar.get(r, c - 1), hVar.get(r, c - 2));
+            } else {
+                model.addEquality(hVar.get(r, c - 1), 0);
+            }
+        }
+        // RIGHT direction
+        if (c < w - 1) {
+            if (c < w - 2) {
+                if (hVar.get(r, c + 1) != null) model.addImplication(hVar.get(r, c), hVar.get(r, c + 1));
+            } else {
+                model.addEquality(hVar.get(r, c), 0);
             }
         }
     }
@@ -0,0 +1,693 @@
+import com.google.ortools.Loader;
+import com.google.ortools.sat.*;
+
+// java utilities
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Large-grid mode of the CP solver. The board is split into overlapping tiles that are solved in parallel, each tile
+// only knowing its own cells and the edges crossing its border. The tiles are colored like a checkerboard, and the
+// tiles of the second color continue the solutions of their neighbors. The core of every tile solution (the tile
+// without its overlap) is then kept as it is, and only narrow seam bands around the borders between cores
+// are solved again in a repair model, where a circuit constraint over hVars/vVars joins everything into one loop.
+// If the tile solutions cannot be repaired, the bands are widened and the repair is tried again, and only then is
+// the whole board solved as one model with the tiles as hints.
+public class SolverTiled {
+
+    public final Grid grid;
+    final int tileSize;
+    final int overlap;
+    final int threads;
+    final double timeLimit;
+
+    // Half width of the free band around each border between two cores in the repair model
+    final int seam;
+
+    // Maximum number of lazy rounds on a single tile, its last assignment is used as a hint either way
+    static final int TILE_ROUNDS = 20;
+    // Number of repair models tried, each with wider bands than the one before
+    static final int REPAIR_ATTEMPTS = 3;
+    // Seconds a tile of the second phase may spend on continuing its neighbors before it is loosened
+    static final double FIXED_SECONDS = 10;
+    // Rules of cells within distance 2 of a free cell reach edges with an endpoint within distance 3
+    private static final int REACH = 3;
+
+    // Edges of the tile solutions, [h][w-1] and [h-1][w] like grid.horiz and grid.vert
+    final boolean[][] hintH;
+    final boolean[][] hintV;
+
+    int tiles;
+    int repairs;
+    boolean fallback;
+    CpSolverStatus status;
+    double wallTime; // seconds for the whole run, tiles included
+    private long deadline;
+
+    // Cells whose edges are free in the repair model, and the steps from every cell to the nearest free cell,
+    // capped at REACH + 1
+    private boolean[][] free;
+    private int[][] dist;
+
+    public SolverTiled(Grid grid) {
+        this(grid, 40, 4, Runtime.getRuntime().availableProcessors(), 600);
+    }
+
+    public SolverTiled(Grid grid, int tileSize, int overlap, int threads, double timeLimit) {
+        if (overlap < 2)
+            throw new IllegalArgumentException("Overlap must be at least 2 so that tiles see every rule of their core");
+        if (tileSize <= 2 * overlap)
+            throw new IllegalArgumentException("Tile size must be larger than twice the overlap");
+        Loader.loadNativeLibraries();
+        this.grid = grid;
+        this.tileSize = tileSize;
+        this.overlap = overlap;
+        this.threads = threads;
+        this.timeLimit = timeLimit;
+        seam = overlap / 2;
+        hintH = new boolean[grid.h][Math.max(grid.w - 1, 0)];
+        hintV = new boolean[Math.max(grid.h - 1, 0)][grid.w];
+    }
+
+    private int core() {
+        return tileSize - 2 * overlap;
+    }
+
+    // Whether row or column x, on a side of length n, is within seam of a border between two cores
+    private boolean nearSeam(int x, int n) {
+        int below = x / core() * core();
+        int above = below + core();
+        return (below > 0 && x - below < seam) || (above < n && above - 1 - x < seam);
+    }
+
+    // Cells within distance k of a free cell
+    private boolean near(int r, int c, int k) {
+        return dist[r][c] <= k;
+    }
+
+    // Steps from every cell to the nearest free cell, capped at max + 1
+    private int[][] distances(int max) {
+        int[][] d = new int[grid.h][grid.w];
+        int[] queue = new int[grid.h * grid.w];
+        int tail = 0;
+        for (int r = 0; r < grid.h; r++) {
+            for (int c = 0; c < grid.w; c++) {
+                d[r][c] = free[r][c] ? 0 : max + 1;
+                if (free[r][c]) queue[tail++] = r * grid.w + c;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int r = queue[head] / grid.w, c = queue[head] % grid.w;
+            if (d[r][c] == max) continue;
+            for (int k = 0; k < 4; k++) {
+                int nr = r + DR[k], nc = c + DC[k];
+                if (nr < 0 || nr >= grid.h || nc < 0 || nc >= grid.w || d[nr][nc] <= d[r][c] + 1) continue;
+                d[nr][nc] = d[r][c] + 1;
+                queue[tail++] = nr * grid.w + nc;
+            }
+        }
+        return d;
+    }
+
+    // Starting the repair with the seam bands free
+    private void initFree() {
+        free = new boolean[grid.h][grid.w];
+        for (int r = 0; r < grid.h; r++)
+            for (int c = 0; c < grid.w; c++)
+                free[r][c] = nearSeam(r, grid.h) || nearSeam(c, grid.w);
+        dist = distances(REACH);
+    }
+
+    // Freeing every cell within k steps of a free cell
+    private void widen(int k) {
+        int[][] d = distances(k);
+        for (int r = 0; r < grid.h; r++)
+            for (int c = 0; c < grid.w; c++)
+                free[r][c] = d[r][c] <= k;
+        dist = distances(REACH);
+    }
+
+    private double remaining() {
+        return (deadline - System.nanoTime()) / 1e9;
+    }
+
+    // Edge variables of a rectangular region of the board [r0,r1) x [c0,c1), indexed with board coordinates.
+    // Every edge with at least one endpoint inside the region has a variable, any other edge is null. In the repair
+    // model only edges near the seams have variables, the others keep the values of the tile solutions in hintH/hintV.
+    private final class Region {
+        final int r0, c0, r1, c1;
+        final BoolVar[][] hVars; // rows r0..r1-1, cols c0-1..c1-1
+        final BoolVar[][] vVars; // rows r0-1..r1-1, cols c0..c1-1
+        final boolean repair;
+
+        Region(CpModel model, int r0, int c0, int r1, int c1, boolean repair) {
+            this.r0 = r0;
+            this.c0 = c0;
+            this.r1 = r1;
+            this.c1 = c1;
+            this.repair = repair;
+            hVars = new BoolVar[r1 - r0][c1 - c0 + 1];
+            vVars = new BoolVar[r1 - r0 + 1][c1 - c0];
+
+            for (int r = r0; r < r1; r++)
+                for (int c = Math.max(c0 - 1, 0); c < Math.min(c1, grid.w - 1); c++)
+                    if (!repair || near(r, c, REACH) || near(r, c + 1, REACH))
+                        hVars[r - r0][c - c0 + 1] = model.newBoolVar("H_" + r + "_" + c);
+            for (int r = Math.max(r0 - 1, 0); r < Math.min(r1, grid.h - 1); r++)
+                for (int c = c0; c < c1; c++)
+                    if (!repair || near(r, c, REACH) || near(r + 1, c, REACH))
+                        vVars[r - r0 + 1][c - c0] = model.newBoolVar("V_" + r + "_" + c);
+        }
+
+        boolean contains(int r, int c) {
+            return r0 <= r && r < r1 && c0 <= c && c < c1;
+        }
+
+        // horizontal edge between (r,c) and (r,c+1)
+        BoolVar h(int r, int c) {
+            if (r < r0 || r >= r1 || c < c0 - 1 || c >= c1) return null;
+            return hVars[r - r0][c - c0 + 1];
+        }
+
+        // vertical edge between (r,c) and (r+1,c)
+        BoolVar v(int r, int c) {
+            if (r < r0 - 1 || r >= r1 || c < c0 || c >= c1) return null;
+            return vVars[r - r0 + 1][c - c0];
+        }
+
+        // edge from (r,c) in direction d (0 up, 1 right, 2 down, 3 left), null if it has no variable
+        BoolVar edge(int r, int c, int d) {
+            return switch (d) {
+                case 0 -> v(r - 1, c);
+                case 1 -> h(r, c);
+                case 2 -> v(r, c);
+                default -> h(r, c - 1);
+            };
+        }
+
+        // value of the edge from (r,c) in direction d, from the solver or from the tile solutions in the repair model
+        boolean value(CpSolver solver, int r, int c, int d) {
+            int nr = r + DR[d], nc = c + DC[d];
+            if (nr < 0 || nr >= grid.h || nc < 0 || nc >= grid.w) return false;
+            BoolVar e = edge(r, c, d);
+            if (e != null) return solver.booleanValue(e);
+            return repair && hint(r, c, d);
+        }
+    }
+
+    // value of the edge from (r,c) in direction d in the tile solutions, the neighbor must be on the board
+    private boolean hint(int r, int c, int d) {
+        return switch (d) {
+            case 0 -> hintV[r - 1][c];
+            case 1 -> hintH[r][c];
+            case 2 -> hintV[r][c];
+            default -> hintH[r][c - 1];
+        };
+    }
+
+    private static final int[] DR = {-1, 0, 1, 0};
+    private static final int[] DC = {0, 1, 0, -1};
+
+    // Rules of SolverCP for the cells of a region, rules that need edges beyond the region are left out
+    private void addRules(CpModel model, Region g) {
+        for (int r = g.r0; r < g.r1; r++)
+            for (int c = g.c0; c < g.c1; c++)
+                SolverCP.addCellRules(model, grid, g::h, g::v, r, c);
+    }
+
+    // Boundary-crossing constraints of a tile: the loop enters and leaves the tile an even number of times,
+    // and at least twice if there are circles both inside and outside the tile
+    private void addBorderRules(CpModel model, Region g) {
+        List<BoolVar> crossing = new ArrayList<>();
+        for (int r = g.r0; r < g.r1; r++) {
+            if (g.h(r, g.c0 - 1) != null) crossing.add(g.h(r, g.c0 - 1));
+            if (g.h(r, g.c1 - 1) != null) crossing.add(g.h(r, g.c1 - 1));
+        }
+        for (int c = g.c0; c < g.c1; c++) {
+            if (g.v(g.r0 - 1, c) != null) crossing.add(g.v(g.r0 - 1, c));
+            if (g.v(g.r1 - 1, c) != null) crossing.add(g.v(g.r1 - 1, c));
+        }
+        if (crossing.isEmpty()) return;
+
+        BoolVar[] cut = crossing.toArray(new BoolVar[0]);
+        IntVar half = model.newIntVar(0, cut.length / 2, "half");
+        model.addEquality(LinearExpr.sum(cut), LinearExpr.term(half, 2));
+
+        int inside = circles(g.r0, g.c0, g.r1, g.c1);
+        if (inside > 0 && inside < grid.circles) model.addGreaterOrEqual(LinearExpr.sum(cut), 2);
+    }
+
+    // Number of circles in [r0,r1) x [c0,c1)
+    private int circles(int r0, int c0, int r1, int c1) {
+        int n = 0;
+        for (int r = r0; r < r1; r++)
+            for (int c = c0; c < c1; c++)
+                if (grid.cells[r][c].type != Type.NONE) n++;
+        return n;
+    }
+
+    // Finds the closed loops of an assignment of a tile and adds a constraint against each loop that cannot be
+    // part of the final solution. Loops with some but not all circles must be connected to the rest of the board,
+    // so at least two edges leaving their cells are required. Loops without circles must do the same as soon as any
+    // of their edges is used, which is much stronger than only forbidding the loop itself as SolverCP does.
+    // Paths leaving the tile are not loops yet and are skipped. Returns the number of constraints added.
+    private int cutLoops(CpModel model, Region g, CpSolver solver) {
+        int rows = g.r1 - g.r0;
+        int cols = g.c1 - g.c0;
+        int[][] comp = new int[rows][cols]; // 0 = not visited, otherwise component id
+        int[] queue = new int[rows * cols];
+        int id = 0;
+        int added = 0;
+
+        for (int r = g.r0; r < g.r1; r++) {
+            for (int c = g.c0; c < g.c1; c++) {
+                if (comp[r - g.r0][c - g.c0] != 0 || !used(g, solver, r, c)) continue;
+
+                // breadth-first search over the used edges
+                id++;
+                comp[r - g.r0][c - g.c0] = id;
+                queue[0] = r * grid.w + c;
+                int head = 0, tail = 1, circles = 0;
+                boolean open = false;
+                while (head < tail) {
+                    int cr = queue[head] / grid.w, cc = queue[head] % grid.w;
+                    head++;
+                    if (grid.cells[cr][cc].type != Type.NONE) circles++;
+                    for (int d = 0; d < 4; d++) {
+                        if (!g.value(solver, cr, cc, d)) continue;
+                        int nr = cr + DR[d], nc = cc + DC[d];
+                        if (!g.contains(nr, nc)) {
+                            open = true;
+                        } else if (comp[nr - g.r0][nc - g.c0] == 0) {
+                            comp[nr - g.r0][nc - g.c0] = id;
+                            queue[tail++] = nr * grid.w + nc;
+                        }
+                    }
+                }
+
+                // the loop crosses all circles, skip the constraint
+                if (open || circles == grid.circles) continue;
+
+                // leaving edges are false, loop edges are true
+                List<BoolVar> leaving = new ArrayList<>();
+                List<BoolVar> loop = new ArrayList<>();
+                for (int i = 0; i < tail; i++) {
+                    int cr = queue[i] / grid.w, cc = queue[i] % grid.w;
+                    for (int d = 0; d < 4; d++) {
+                        BoolVar e = g.edge(cr, cc, d);
+                        if (e == null) continue; // off the board
+                        int nr = cr + DR[d], nc = cc + DC[d];
+                        boolean inLoop = g.contains(nr, nc) && comp[nr - g.r0][nc - g.c0] == id;
+                        if (!inLoop) leaving.add(e);
+                        // every loop edge is seen from both of its cells, keep it once
+                        if (inLoop && (d == 1 || d == 2) && solver.booleanValue(e)) loop.add(e);
+                    }
+                }
+
+                LinearExpr out = LinearExpr.sum(leaving.toArray(new BoolVar[0]));
+                if (circles > 0) {
+                    model.addGreaterOrEqual(out, 2);
+                } else {
+                    for (BoolVar e : loop) model.addGreaterOrEqual(out, 2).onlyEnforceIf(e);
+                }
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // Single loop constraint of a global model: one circuit through the cells that have free edges, where a cell may
+    // be left out with a self loop. Every free edge is the sum of its two directions. In the repair model, each stretch
+    // of the tile solutions between two such cells becomes one fixed arc, so the circuit only grows with the free
+    // cells. Returns false if the tile solutions have loops with no such cell, which the model cannot change. Those
+    // cells are freed for the next repair.
+    private boolean addCircuit(CpModel model, Region g) {
+        int[][] node = new int[grid.h][grid.w];
+        int n = 0;
+        for (int r = 0; r < grid.h; r++) {
+            for (int c = 0; c < grid.w; c++) {
+                node[r][c] = -1;
+                for (int d = 0; d < 4; d++) {
+                    if (loose(g, r, c, d)) {
+                        node[r][c] = n++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        CircuitConstraint circuit = model.addCircuit();
+        for (int r = 0; r < grid.h; r++) {
+            for (int c = 0; c < grid.w; c++) {
+                if (node[r][c] < 0) continue;
+                circuit.addArc(node[r][c], node[r][c], model.newBoolVar("skip"));
+                // right and down edges, so that every edge is added once
+                for (int d = 1; d <= 2; d++)
+                    if (loose(g, r, c, d))
+                        addEdge(model, circuit::addArc, node[r][c], node[r + DR[d]][c + DC[d]], g.edge(r, c, d));
+            }
+        }
+        if (!g.repair) return true;
+
+        // follow the fixed edges from every cell with free edges to the next such cell
+        boolean[][] seen = new boolean[grid.h][grid.w];
+        List<Integer> stretch = new ArrayList<>();
+        boolean stuck = false;
+        for (int r = 0; r < grid.h; r++) {
+            for (int c = 0; c < grid.w; c++) {
+                if (node[r][c] < 0) continue;
+                for (int d = 0; d < 4; d++) {
+                    if (!onBoard(r, c, d) || loose(g, r, c, d) || !hint(r, c, d)) continue;
+                    int cr = r + DR[d], cc = c + DC[d], from = (d + 2) % 4;
+                    stretch.clear();
+                    while (node[cr][cc] < 0 && from >= 0) {
+                        seen[cr][cc] = true;
+                        stretch.add(cr * grid.w + cc);
+                        int next = -1;
+                        for (int k = 0; k < 4; k++)
+                            if (k != from && onBoard(cr, cc, k) && hint(cr, cc, k)) next = k;
+                        if (next >= 0) {
+                            cr += DR[next];
+                            cc += DC[next];
+                            next = (next + 2) % 4;
+                        }
+                        from = next;
+                    }
+                    // a dead end, or a stretch that comes back to where it started, cannot be part of the circuit
+                    if (from < 0 || (cr == r && cc == c)) {
+                        for (int i : stretch) free[i / grid.w][i % grid.w] = true;
+                        stuck = true;
+                    }
+                    // each stretch is found from both of its ends, keep it once
+                    else if (node[r][c] < node[cr][cc])
+                        addEdge(model, circuit::addArc, node[r][c], node[cr][cc], model.newConstant(1));
+                }
+            }
+        }
+
+        // the remaining cells on the loop are on closed loops without free edges
+        for (int r = 0; r < grid.h; r++) {
+            for (int c = 0; c < grid.w; c++) {
+                if (node[r][c] >= 0 || seen[r][c]) continue;
+                for (int d = 0; d < 4; d++) {
+                    if (onBoard(r, c, d) && hint(r, c, d)) {
+                        free[r][c] = true;
+                        stuck = true;
+                    }
+                }
+            }
+        }
+        if (stuck) dist = distances(REACH);
+        return !stuck;
+    }
+
+    // Whether the edge from (r,c) in direction d can change in the model, the repair model keeps the tile solution
+    // for edges without a free endpoint
+    private boolean loose(Region g, int r, int c, int d) {
+        if (!onBoard(r, c, d) || g.edge(r, c, d) == null) return false;
+        return !g.repair || free[r][c] || free[r + DR[d]][c + DC[d]];
+    }
+
+    // Paths of the core [r0,r1) x [c0,c1) of a tile whose loop must leave the core. All cells outside the core are
+    // merged into node 0, so that every path through the core becomes a route from node 0 through a crossing edge and
+    // back, and the routes constraint rules out any loop closed inside the core. Every path of the core then ends in
+    // the seam bands, where the repair can join it to the others.
+    private void addRoutes(CpModel model, Region g, int r0, int c0, int r1, int c1) {
+        MultipleCircuitConstraint routes = model.addMultipleCircuit();
+        int cols = c1 - c0;
+        for (int r = r0; r < r1; r++) {
+            for (int c = c0; c < c1; c++) {
+                int node = 1 + (r - r0) * cols + c - c0;
+                routes.addArc(node, node, model.newBoolVar("skip"));
+                for (int d = 0; d < 4; d++) {
+                    if (!onBoard(r, c, d)) continue;
+                    int nr = r + DR[d], nc = c + DC[d];
+                    if (nr < r0 || nr >= r1 || nc < c0 || nc >= c1)
+                        addEdge(model, routes::addArc, 0, node, g.edge(r, c, d));
+                    else if (d == 1 || d == 2)
+                        addEdge(model, routes::addArc, node, 1 + (nr - r0) * cols + nc - c0, g.edge(r, c, d));
+                }
+            }
+        }
+    }
+
+    // Arcs of a circuit or routes constraint
+    private interface Arcs {
+        void addArc(int tail, int head, Literal literal);
+    }
+
+    // Undirected edge between nodes a and b, used if it is crossed in either direction
+    private static void addEdge(CpModel model, Arcs arcs, int a, int b, IntVar edge) {
+        BoolVar ab = model.newBoolVar("arc");
+        BoolVar ba = model.newBoolVar("arc");
+        arcs.addArc(a, b, ab);
+        arcs.addArc(b, a, ba);
+        model.addEquality(LinearExpr.sum(new BoolVar[]{ab, ba}), edge);
+    }
+
+    private boolean onBoard(int r, int c, int d) {
+        int nr = r + DR[d], nc = c + DC[d];
+        return nr >= 0 && nr < grid.h && nc >= 0 && nc < grid.w;
+    }
+
+    private boolean used(Region g, CpSolver solver, int r, int c) {
+        for (int d = 0; d < 4; d++)
+            if (g.value(solver, r, c, d)) return true;
+        return false;
+    }
+
+    // Solving one tile with its core [r0,r1) x [c0,c1) and copying the core edges to hintH/hintV. If margin is not
+    // negative, the edges of the tile owned by cores of the first phase keep their solution unless they are within
+    // margin of the core, so that the tile continues it. Otherwise INFEASIBLE means the tile has no solution, in which
+    // case the whole puzzle has none either.
+    private CpSolverStatus solveTile(int r0, int c0, int r1, int c1, int margin) {
+        boolean fixed = margin >= 0;
+        CpModel model = new CpModel();
+        Region g = new Region(model,
+                Math.max(r0 - overlap, 0), Math.max(c0 - overlap, 0),
+                Math.min(r1 + overlap, grid.h), Math.min(c1 + overlap, grid.w), false);
+        addRules(model, g);
+        // the first phase can leave any number of paths crossing the border of the tile
+        if (fixed) fixFirstPhase(model, g, r0 - margin, c0 - margin, r1 + margin, c1 + margin);
+        else addBorderRules(model, g);
+        // a tile over the whole board is the puzzle itself and gets the single circuit, otherwise the loop leaves the
+        // core if there are circles outside, and if it may be closed inside the tile extra loops are removed with
+        // lazy cuts instead of routes
+        boolean board = g.r0 == 0 && g.c0 == 0 && g.r1 == grid.h && g.c1 == grid.w;
+        boolean leaves = circles(r0, c0, r1, c1) < grid.circles;
+        if (board) addCircuit(model, g);
+        else if (leaves) addRoutes(model, g, r0, c0, r1, c1);
+
+        CpSolver solver = new CpSolver();
+        // tiles are already solved in parallel
+        configure(solver, 1);
+        for (int round = 0; round < TILE_ROUNDS; round++) {
+            if (remaining() <= 0) return CpSolverStatus.UNKNOWN;
+            solver.getParameters().setMaxTimeInSeconds(fixed ? Math.min(remaining(), FIXED_SECONDS) : remaining());
+            CpSolverStatus status = solver.solve(model);
+            if (status != CpSolverStatus.OPTIMAL && status != CpSolverStatus.FEASIBLE) return status;
+            if (board || leaves || cutLoops(model, g, solver) <= 0) break;
+        }
+
+        // each edge is owned by the core containing its top/left cell, so tiles never write the same hint
+        for (int r = r0; r < r1; r++) {
+            for (int c = c0; c < c1; c++) {
+                if (c < grid.w - 1) hintH[r][c] = solver.booleanValue(g.h(r, c));
+                if (r < grid.h - 1) hintV[r][c] = solver.booleanValue(g.v(r, c));
+            }
+        }
+        return CpSolverStatus.FEASIBLE;
+    }
+
+    // Fixing the edges of a tile that are owned by cores of the first phase to their solution, except for the edges
+    // with an endpoint in [r0,r1) x [c0,c1)
+    private void fixFirstPhase(CpModel model, Region g, int r0, int c0, int r1, int c1) {
+        for (int r = Math.max(g.r0 - 1, 0); r < g.r1; r++) {
+            for (int c = Math.max(g.c0 - 1, 0); c < g.c1; c++) {
+                if (!firstPhase(r, c)) continue;
+                boolean in = r0 <= r && r < r1 && c0 <= c && c < c1;
+                boolean right = r0 <= r && r < r1 && c0 <= c + 1 && c + 1 < c1;
+                boolean down = r0 <= r + 1 && r + 1 < r1 && c0 <= c && c < c1;
+                if (c < grid.w - 1 && g.h(r, c) != null && !in && !right)
+                    model.addEquality(g.h(r, c), hintH[r][c] ? 1 : 0);
+                if (r < grid.h - 1 && g.v(r, c) != null && !in && !down)
+                    model.addEquality(g.v(r, c), hintV[r][c] ? 1 : 0);
+            }
+        }
+    }
+
+    // Whether the cell (r,c) is in a core of the first phase, the cores are colored like a checkerboard
+    private boolean firstPhase(int r, int c) {
+        return (r / core() + c / core()) % 2 == 0;
+    }
+
+    // Solving all tiles, in two phases of parallel tiles. The tiles of the first phase are solved on their own, and
+    // those of the second phase continue the solutions of their neighbors, so that the rules of every cell hold once
+    // both phases are done and the repair only has to join the loops. Returns INFEASIBLE if any tile has no solution,
+    // UNKNOWN if any tile ran out of time, FEASIBLE if hintH/hintV hold a solution for every tile.
+    private CpSolverStatus solveTiles() throws InterruptedException, ExecutionException {
+        int core = core();
+        List<List<Callable<CpSolverStatus>>> phases = List.of(new ArrayList<>(), new ArrayList<>());
+        for (int r = 0; r < grid.h; r += core) {
+            for (int c = 0; c < grid.w; c += core) {
+                int r0 = r, c0 = c, r1 = Math.min(r + core, grid.h), c1 = Math.min(c + core, grid.w);
+                if (firstPhase(r, c)) {
+                    phases.get(0).add(() -> solveTile(r0, c0, r1, c1, -1));
+                } else {
+                    phases.get(1).add(() -> {
+                        // the neighbors may leave no room for a solution, the tile then takes over the edges of their
+                        // seam bands, which the repair frees anyway, and as a last resort it is solved on its own
+                        for (int margin : new int[]{0, seam}) {
+                            CpSolverStatus status = solveTile(r0, c0, r1, c1, margin);
+                            if (status == CpSolverStatus.FEASIBLE || remaining() <= 0) return status;
+                        }
+                        return solveTile(r0, c0, r1, c1, -1);
+                    });
+                }
+            }
+        }
+        tiles = phases.get(0).size() + phases.get(1).size();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CpSolverStatus result = CpSolverStatus.FEASIBLE;
+            for (List<Callable<CpSolverStatus>> phase : phases) {
+                for (Future<CpSolverStatus> f : pool.invokeAll(phase)) {
+                    CpSolverStatus status = f.get();
+                    if (status == CpSolverStatus.INFEASIBLE) return status;
+                    if (status != CpSolverStatus.FEASIBLE) result = CpSolverStatus.UNKNOWN;
+                }
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Global pass with a single circuit. In repair mode, only the edges of free cells are free and the rest keeps the
+    // tile solutions, so the model grows with the length of the seams. INFEASIBLE then only means that the tile
+    // solutions cannot be repaired with the current free cells. Otherwise the whole board is free and the tile
+    // solutions are only hints. Copies the loop to the grid if the puzzle is solved.
+    private CpSolverStatus solveGlobal(boolean repair, boolean hints) {
+        CpModel model = new CpModel();
+        Region g = new Region(model, 0, 0, grid.h, grid.w, repair);
+        List<BoolVar> vars = new ArrayList<>();
+        List<Boolean> start = new ArrayList<>();
+        for (int r = 0; r < grid.h; r++) {
+            for (int c = 0; c < grid.w; c++) {
+                if (!repair || near(r, c, 2)) SolverCP.addCellRules(model, grid, g::h, g::v, r, c);
+                if (c < grid.w - 1 && g.h(r, c) != null) {
+                    vars.add(g.h(r, c));
+                    start.add(hintH[r][c]);
+                    // edges with no free endpoint keep the tile solution
+                    if (repair && !free[r][c] && !free[r][c + 1]) model.addEquality(g.h(r, c), hintH[r][c] ? 1 : 0);
+                }
+                if (r < grid.h - 1 && g.v(r, c) != null) {
+                    vars.add(g.v(r, c));
+                    start.add(hintV[r][c]);
+                    if (repair && !free[r][c] && !free[r + 1][c]) model.addEquality(g.v(r, c), hintV[r][c] ? 1 : 0);
+                }
+            }
+        }
+        if (hints)
+            for (int i = 0; i < vars.size(); i++)
+                model.addHint(vars.get(i), start.get(i) ? 1 : 0);
+        if (!addCircuit(model, g)) return CpSolverStatus.INFEASIBLE;
+
+        if (remaining() <= 0) return CpSolverStatus.UNKNOWN;
+        CpSolver solver = new CpSolver();
+        solver.getParameters().setMaxTimeInSeconds(remaining());
+        configure(solver, threads);
+        CpSolverStatus status = solver.solve(model);
+        if (status != CpSolverStatus.OPTIMAL && status != CpSolverStatus.FEASIBLE) return status;
+
+        // copy solver values and fixed edges to the grid
+        for (int r = 0; r < grid.h; r++)
+            for (int c = 0; c < grid.w - 1; c++)
+                grid.horiz[r][c] = g.value(solver, r, c, 1);
+        for (int r = 0; r < grid.h - 1; r++)
+            for (int c = 0; c < grid.w; c++)
+                grid.vert[r][c] = g.value(solver, r, c, 2);
+        grid.updateDegrees();
+        return status;
+    }
+
+    // Solving without printing. Returns OPTIMAL or FEASIBLE if solved, INFEASIBLE if the puzzle has no solution,
+    // and UNKNOWN if the time limit was reached first.
+    public CpSolverStatus run() throws InterruptedException, ExecutionException {
+        long start = System.nanoTime();
+        deadline = start + (long) (timeLimit * 1e9);
+        repairs = 0;
+        fallback = false;
+
+        // a board that fits in one core has no seams, so it is solved as one model right away
+        if (grid.h <= core() && grid.w <= core()) {
+            tiles = 1;
+            fallback = true;
+            status = solveGlobal(false, false);
+            wallTime = (System.nanoTime() - start) / 1e9;
+            grid.solved = solved(status);
+            return status;
+        }
+
+        // a tile is a relaxation of the puzzle, so a tile without solution proves there is none
+        CpSolverStatus tilesStatus = solveTiles();
+        if (tilesStatus == CpSolverStatus.INFEASIBLE) {
+            status = tilesStatus;
+        } else {
+            boolean complete = tilesStatus == CpSolverStatus.FEASIBLE;
+            status = complete ? repair() : CpSolverStatus.UNKNOWN;
+
+            // the repair keeps the tile cores, so when it fails the puzzle may still have a different solution
+            if (!solved(status) && remaining() > 0) {
+                fallback = true;
+                status = solveGlobal(false, complete);
+            }
+        }
+
+        wallTime = (System.nanoTime() - start) / 1e9;
+        grid.solved = solved(status);
+        return status;
+    }
+
+    // Repair of the tile solutions. After a failed attempt every free cell frees its neighbors up to the overlap,
+    // along with the loops the tiles left closed, so each attempt keeps fewer edges of the tile solutions.
+    private CpSolverStatus repair() {
+        initFree();
+        CpSolverStatus status = CpSolverStatus.UNKNOWN;
+        for (int attempt = 0; attempt < REPAIR_ATTEMPTS && remaining() > 0; attempt++) {
+            if (attempt > 0) widen(overlap);
+            repairs++;
+            status = solveGlobal(true, true);
+            if (solved(status)) break;
+        }
+        return status;
+    }
+
+    // A single worker runs the quick restart search without linear relaxation, which finds loops much faster than the
+    // default search. With more workers the default portfolio already includes it.
+    private static void configure(CpSolver solver, int workers) {
+        solver.getParameters().setNumWorkers(workers);
+        if (workers == 1) {
+            solver.getParameters().setLinearizationLevel(0);
+            solver.getParameters().setSearchBranching(SatParameters.SearchBranching.PORTFOLIO_WITH_QUICK_RESTART_SEARCH);
+        }
+    }
+
+    private static boolean solved(CpSolverStatus status) {
+        return status == CpSolverStatus.OPTIMAL || status == CpSolverStatus.FEASIBLE;
+    }
+
+    public void solve() throws InterruptedException, ExecutionException {
+        run();
+        if (status == CpSolverStatus.INFEASIBLE) {
+            System.out.println("No Solution");
+        } else if (!grid.solved) {
+            System.out.println("Unknown, stopped after " + wallTime + " s");
+        } else {
+            grid.print();
+        }
+        System.out.println("Tiles : " + tiles + ", repairs : " + repairs + (fallback ? " (full model)" : ""));
+        System.out.println("Wall Time : " + wallTime + " s");
+    }
+}